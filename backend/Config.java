@@ -0,0 +1,54 @@
+package backend;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+// Server settings. Read once from backend/server.properties (or the file given with
+// -Dconfig=...); any -Dkey=value on the command line wins over the file.
+public class Config {
+
+    private static final Properties props = load();
+
+    private static Properties load() {
+        Properties p = new Properties();
+        Path path = Paths.get(System.getProperty("config", "backend/server.properties"));
+        if (Files.exists(path)) {
+            try (InputStream in = new FileInputStream(path.toFile())) {
+                p.load(in);
+            } catch (IOException e) {
+                System.out.println("Could not read config " + path + ": " + e.getMessage());
+            }
+        }
+        return p;
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, props.getProperty(key));
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getString(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        try {
+            return Double.parseDouble(getString(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, String.valueOf(defaultValue)));
+    }
+}
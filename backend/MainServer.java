@@ -1,28 +1,132 @@
 package backend;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import backend.database.db;
 import backend.handlers.SignupHandler;
 import backend.handlers.LoginHandler;
 import backend.handlers.ServiceHandler;
 import backend.handlers.BarberHandler;
 import backend.handlers.AppointmentHandler;
 import backend.handlers.ProfileHandler;
+import backend.handlers.HealthHandler;
+import backend.cluster.ClusterBus;
+import backend.logging.RequestLog;
+import backend.logging.RequestLogFilter;
+import backend.maintenance.AppointmentMaintenance;
+import backend.startup.Warmup;
 
 
 public class MainServer {
     public static void main(String[] args) throws Exception {
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
-        
+        // --warmup-only runs the startup steps and exits (used to build the CDS archive, see run.sh)
+        boolean warmupOnly = args.length > 0 && args[0].equals("--warmup-only");
+        long started = System.currentTimeMillis();
+
         // Contexts (Routes)
-        server.createContext("/signup", new SignupHandler());
-        server.createContext("/login", new LoginHandler());
-        server.createContext("/services", new ServiceHandler());
-        server.createContext("/barbers", new BarberHandler());
-        server.createContext("/appointment", new AppointmentHandler());
-        server.createContext("/profile", new ProfileHandler());
-        
-        server.setExecutor(null);
-        System.out.println("Backend running on port 8080...");
+        Map<String, HttpHandler> routes = new LinkedHashMap<>();
+        routes.put("/signup", new SignupHandler());
+        routes.put("/login", new LoginHandler());
+        routes.put("/services", new ServiceHandler());
+        routes.put("/barbers", new BarberHandler());
+        routes.put("/appointment", new AppointmentHandler());
+        routes.put("/profile", new ProfileHandler());
+        routes.put("/health", new HealthHandler());
+
+        // Join the cluster first so invalidations sent while we warm up are not missed
+        if (!warmupOnly) {
+            ClusterBus.start();
+        }
+
+        // Open the DB pool before anything else so warm-up and the first requests reuse it
+        boolean dbUp = true;
+        try {
+            db.init();
+        } catch (Exception e) {
+            dbUp = false;
+            System.out.println("Database pool not initialized, skipping warm-up: " + e.getMessage());
+        }
+
+        int iterations = Config.getInt("warmup.iterations", 100);
+        int ok = 0;
+        if (dbUp && iterations > 0) {
+            ok = new Warmup(routes).run(iterations);
+            System.out.println("Warm-up finished: " + ok + " requests served in " + (System.currentTimeMillis() - started) + " ms");
+        }
+
+        if (warmupOnly) {
+            db.shutdown();
+            // Non-zero tells run.sh the training run was thin and its CDS archive should be thrown away
+            if (ok == 0) {
+                System.out.println("Warm-up did not reach the database");
+                System.exit(1);
+            }
+            return;
+        }
+
+        int port = Config.getInt("server.port", 8080);
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        RequestLogFilter requestLog = new RequestLogFilter();
+        for (Map.Entry<String, HttpHandler> route : routes.entrySet()) {
+            server.createContext(route.getKey(), route.getValue()).getFilters().add(requestLog);
+        }
+
+        // A pool instead of the single dispatcher thread, so identical reads can overlap and coalesce
+        ExecutorService executor = Executors.newFixedThreadPool(Config.getInt("server.threads", Config.getInt("db.pool.size", 8)));
+        server.setExecutor(executor);
+        RequestLog.start();
         server.start();
+
+        // Background cleanup of past and old appointments
+        AppointmentMaintenance maintenance = new AppointmentMaintenance();
+        if (Config.getBoolean("maintenance.enabled", true)) {
+            maintenance.start();
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // Keep serving while the load balancer sees the 503 and stops routing here
+            HealthHandler.setReady(false);
+            try {
+                Thread.sleep(Config.getInt("server.drainMs", 5000));
+            } catch (InterruptedException ignored) {
+            }
+            maintenance.stop();
+            server.stop(1);
+            executor.shutdown();
+            ClusterBus.stop();
+            RequestLog.stop();
+            db.shutdown();
+        }));
+
+        if (dbUp) {
+            HealthHandler.setReady(true);
+            System.out.println("Backend running on port " + port + " (ready in " + (System.currentTimeMillis() - started) + " ms)...");
+        } else {
+            // Serve, but stay out of the load balancer until the database is reachable
+            System.out.println("Backend running on port " + port + ", not ready until the database pool initializes...");
+            Thread retry = new Thread(MainServer::retryPool, "db-pool-retry");
+            retry.setDaemon(true);
+            retry.start();
+        }
+    }
+
+    private static void retryPool() {
+        while (true) {
+            try {
+                Thread.sleep(Config.getInt("db.retryMs", 5000));
+                db.init();
+                HealthHandler.setReady(true);
+                System.out.println("Database pool initialized, backend ready");
+                return;
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.out.println("Database pool still not initialized: " + e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package backend.cache;
+
+import backend.Config;
+import backend.cluster.ClusterBus;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-through cache for serialized GET responses. Every entry belongs to a topic
+// ("barbers", "services", "availability:<barberId>") and remembers the topic version it
+// was loaded under. A write bumps the topic version, here and on every peer through
+// ClusterBus, and any entry loaded under an older version is treated as a miss. So a
+// node never serves a response older than a write it has been told about.
+public class ResponseCache {
+
+    private static final long TTL_MS = Config.getInt("cache.ttlSeconds", 30) * 1000L;
+    private static final int MAX_ENTRIES = Config.getInt("cache.maxEntries", 10000);
+    // Versions are wall-clock based; anything further ahead than this is clamped so a bad
+    // packet cannot push a topic to a value later bumps can no longer exceed
+    private static final long MAX_AHEAD_MS = 60_000;
+
+    private static final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Long> versions = new ConcurrentHashMap<>();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    // Set during startup warm-up so every pass runs the real query instead of a cache hit
+    private static volatile boolean bypass;
+
+    private static class Entry {
+        final SingleFlight.Result result;
+        final long version;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(SingleFlight.Result result, long version) {
+            this.result = result;
+            this.version = version;
+        }
+    }
+
+    public static void setBypass(boolean value) {
+        bypass = value;
+    }
+
+    public static SingleFlight.Result get(String topic, String key, SingleFlight.Loader loader) throws Exception {
+        if (bypass) return loader.load();
+
+        // Read the version before querying: if a write lands while we load, the entry
+        // is stored under the old version and the next read reloads it
+        long version = version(topic);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version >= version && System.currentTimeMillis() - entry.loadedAt < TTL_MS) {
+            hits.increment();
+            return entry.result;
+        }
+
+        misses.increment();
+        SingleFlight.Result result = SingleFlight.READS.execute(key + "@" + version, loader);
+        if (result.code == 200) {
+            if (entries.size() >= MAX_ENTRIES) evict();
+            entries.merge(key, new Entry(result, version), (old, loaded) -> loaded.version >= old.version ? loaded : old);
+        }
+        return result;
+    }
+
+    // Drops expired entries, then the oldest tenth if that was not enough. Rare, since keys
+    // are bounded by the handlers; the whole cache is never flushed at once.
+    private static synchronized void evict() {
+        if (entries.size() < MAX_ENTRIES) return;
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> now - e.loadedAt >= TTL_MS);
+        if (entries.size() < MAX_ENTRIES) return;
+
+        List<Map.Entry<String, Entry>> byAge = new ArrayList<>(entries.entrySet());
+        byAge.sort(Comparator.comparingLong(e -> e.getValue().loadedAt));
+        for (int i = 0; i < Math.max(1, byAge.size() / 10); i++) {
+            entries.remove(byAge.get(i).getKey(), byAge.get(i).getValue());
+        }
+    }
+
+    // Call after a write has been committed
+    public static void invalidate(String topic) {
+        long next = versions.merge(topic, System.currentTimeMillis(), (current, now) -> Math.max(Math.addExact(current, 1), now));
+        ClusterBus.publish(topic, next);
+    }
+
+    // A peer told us about a write; versions only ever move forward
+    public static void apply(String topic, long version) {
+        long clamped = Math.min(version, System.currentTimeMillis() + MAX_AHEAD_MS);
+        versions.merge(topic, clamped, Math::max);
+    }
+
+    public static long version(String topic) {
+        return versions.getOrDefault(topic, 0L);
+    }
+
+    public static Map<String, Long> versions() {
+        return new HashMap<>(versions);
+    }
+
+    public static long hitCount() {
+        return hits.sum();
+    }
+
+    public static long missCount() {
+        return misses.sum();
+    }
+
+    public static int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,73 @@
+package backend.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collapses identical concurrent reads: the first request for a key runs the query,
+// everyone who asks for the same key while it is running waits for that result and
+// gets the same response bytes. Nothing is kept once the query finishes.
+public class SingleFlight {
+
+    // Shared by the read handlers; keys are prefixed with the route
+    public static final SingleFlight READS = new SingleFlight();
+
+    public static class Result {
+        public final int code;
+        public final byte[] body;
+
+        public Result(int code, String body) {
+            this.code = code;
+            this.body = body.getBytes();
+        }
+    }
+
+    public interface Loader {
+        Result load() throws Exception;
+    }
+
+    private final ConcurrentHashMap<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public Result execute(String key, Loader loader) throws Exception {
+        requests.increment();
+        CompletableFuture<Result> mine = new CompletableFuture<>();
+        CompletableFuture<Result> running = inFlight.putIfAbsent(key, mine);
+
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : new Exception(cause);
+            }
+        }
+
+        try {
+            Result result = loader.load();
+            mine.complete(result);
+            return result;
+        } catch (Throwable t) {
+            // Waiters get the same failure instead of hanging
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,165 @@
+package backend.cluster;
+
+import backend.Config;
+import backend.cache.ResponseCache;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Tells the other MainServer instances when this one writes, so their caches drop
+// the affected responses. Plain UDP to the hosts in cluster.peers, no broker.
+//
+// Packet: "v1 <nodeId> <topic>=<version> <topic>=<version> ..."
+//
+// UDP can drop packets, so every node also re-sends all the versions it knows every
+// cluster.syncMs; a lost invalidation is repaired within that interval.
+public class ClusterBus {
+
+    private static final int MAX_PACKET = 1200;
+    private static final String NODE_ID = UUID.randomUUID().toString().substring(0, 8);
+
+    private static volatile DatagramSocket socket;
+    // Replaced as a whole when a peer that was not resolvable at startup resolves later
+    private static volatile List<InetSocketAddress> peers = new ArrayList<>();
+    private static ScheduledExecutorService sync;
+
+    public static synchronized void start() throws IOException {
+        if (socket != null || !Config.getBoolean("cluster.enabled", false)) return;
+
+        List<InetSocketAddress> configured = new ArrayList<>();
+        for (String peer : Config.getString("cluster.peers", "").split(",")) {
+            String[] hostPort = peer.trim().split(":");
+            if (hostPort.length == 2) {
+                configured.add(new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1])));
+            }
+        }
+        peers = configured;
+
+        int port = Config.getInt("cluster.port", 9090);
+        // Bind to the cluster network only when cluster.bindAddress is set; packets are
+        // filtered by sender below either way
+        String bindAddress = Config.getString("cluster.bindAddress", "");
+        socket = bindAddress.isEmpty()
+            ? new DatagramSocket(port)
+            : new DatagramSocket(new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+
+        Thread receiver = new Thread(ClusterBus::receive, "cluster-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+
+        long syncMs = Config.getInt("cluster.syncMs", 2000);
+        sync = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cluster-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        sync.scheduleWithFixedDelay(() -> {
+            // An exception escaping here would cancel the schedule for good
+            try {
+                resolvePeers();
+                send(ResponseCache.versions());
+            } catch (RuntimeException e) {
+                System.out.println("Cluster sync failed: " + e);
+            }
+        }, syncMs, syncMs, TimeUnit.MILLISECONDS);
+
+        System.out.println("Cluster node " + NODE_ID + " listening on UDP " + port + ", peers: " + peers);
+    }
+
+    public static synchronized void stop() {
+        if (socket == null) return;
+        sync.shutdownNow();
+        socket.close();
+        socket = null;
+    }
+
+    public static void publish(String topic, long version) {
+        if (socket == null) return;
+        send(Map.of(topic, version));
+    }
+
+    private static void send(Map<String, Long> changes) {
+        DatagramSocket s = socket;
+        if (s == null || changes.isEmpty()) return;
+
+        String header = "v1 " + NODE_ID;
+        StringBuilder packet = new StringBuilder(header);
+        for (Map.Entry<String, Long> change : changes.entrySet()) {
+            String item = " " + change.getKey() + "=" + change.getValue();
+            if (packet.length() + item.length() > MAX_PACKET) {
+                sendToPeers(s, packet.toString());
+                packet.setLength(0);
+                packet.append(header);
+            }
+            packet.append(item);
+        }
+        sendToPeers(s, packet.toString());
+    }
+
+    // Retries DNS for peers that did not resolve yet (e.g. not started when we did). Only
+    // called from the sync thread so request threads never wait on a lookup.
+    private static void resolvePeers() {
+        List<InetSocketAddress> current = peers;
+        List<InetSocketAddress> resolved = new ArrayList<>(current.size());
+        boolean changed = false;
+        for (InetSocketAddress peer : current) {
+            if (peer.isUnresolved()) {
+                InetSocketAddress retry = new InetSocketAddress(peer.getHostString(), peer.getPort());
+                changed |= !retry.isUnresolved();
+                peer = retry;
+            }
+            resolved.add(peer);
+        }
+        if (changed) peers = resolved;
+    }
+
+    private static void sendToPeers(DatagramSocket s, String message) {
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        for (InetSocketAddress peer : peers) {
+            if (peer.isUnresolved()) continue;
+            try {
+                s.send(new DatagramPacket(data, data.length, peer));
+            } catch (IOException | RuntimeException e) {
+                // Peer down or unreachable; the periodic sync catches it up later. This runs
+                // after a write has committed, so it must never fail the request.
+            }
+        }
+    }
+
+    private static void receive() {
+        byte[] buffer = new byte[MAX_PACKET * 2];
+        while (true) {
+            DatagramSocket s = socket;
+            if (s == null) return;
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                s.receive(packet);
+                // Only configured peers may move our versions
+                if (!peers.contains(packet.getSocketAddress())) continue;
+                String[] parts = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).split(" ");
+                // Ignore other protocols and our own packets if we are in our peer list
+                if (parts.length < 2 || !parts[0].equals("v1") || parts[1].equals(NODE_ID)) continue;
+                for (int i = 2; i < parts.length; i++) {
+                    int eq = parts[i].lastIndexOf('=');
+                    if (eq > 0) {
+                        ResponseCache.apply(parts[i].substring(0, eq), Long.parseLong(parts[i].substring(eq + 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // Malformed packet, drop it
+            } catch (IOException e) {
+                if (socket == null) return;
+            }
+        }
+    }
+}
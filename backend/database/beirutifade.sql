@@ -54,7 +54,26 @@ CREATE TABLE appointment (
     -- Foreign Key Constraints
     CONSTRAINT fk_appointment_customer FOREIGN KEY (CustomerId) REFERENCES customer(Id),
     CONSTRAINT fk_appointment_barber FOREIGN KEY (BarberId) REFERENCES barber(Id),
-    CONSTRAINT fk_appointment_service FOREIGN KEY (ServiceId) REFERENCES service(Id)
+    CONSTRAINT fk_appointment_service FOREIGN KEY (ServiceId) REFERENCES service(Id),
+
+    -- Availability checks and the maintenance job filter on these columns
+    INDEX idx_appointment_barber_date (BarberId, AppointmentDate, Status),
+    INDEX idx_appointment_status_date (Status, AppointmentDate)
+);
+
+-- 5b. Appointment Archive Table (old completed/cancelled appointments moved out by the maintenance job)
+CREATE TABLE appointment_archive (
+    Id INT PRIMARY KEY,
+    CustomerId INT NOT NULL,
+    BarberId INT NOT NULL,
+    ServiceId INT NOT NULL,
+    AppointmentDate DATE NOT NULL,
+    AppointmentTime TIME NOT NULL,
+    Status ENUM('pending', 'confirmed', 'completed', 'cancelled') NOT NULL,
+    ArchivedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_archive_customer (CustomerId),
+    INDEX idx_archive_barber (BarberId)
 );
 
 -- 6. Product Order Table (For Onsite Orders)
@@ -1,21 +1,190 @@
 package backend.database;
 
+import backend.Config;
+import backend.logging.RequestLog;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class db {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/beirutifade";
-    private static final String USER = "root"; 
-    private static final String PASSWORD = "root";
+    private static final String URL = Config.getString("db.url", "jdbc:mysql://localhost:3306/beirutifade");
+    private static final String USER = Config.getString("db.user", "root");
+    private static final String PASSWORD = Config.getString("db.password", "root");
+    private static final int POOL_SIZE = Config.getInt("db.pool.size", 8);
+    private static final long WAIT_MS = Config.getInt("db.pool.waitMs", 5000);
 
-    public static Connection getConnection() throws SQLException {
+    // Idle connections older than this are pinged before being handed out again
+    private static final long VALIDATE_AFTER_MS = 30_000;
+
+    private static final BlockingQueue<Idle> idle = new LinkedBlockingQueue<>();
+    // One permit per connection in use, so at most POOL_SIZE are ever open; callers
+    // beyond that wait for one to be returned instead of opening a throwaway connection
+    private static final Semaphore inUse = new Semaphore(POOL_SIZE, true);
+
+    // Loaded once here instead of on every getConnection()
+    private static final ClassNotFoundException driverError = loadDriver();
+
+    private static ClassNotFoundException loadDriver() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
-            return DriverManager.getConnection(URL, USER, PASSWORD);
+            return null;
         } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL Driver not found! Did you add the JAR file?", e);
+            return e;
+        }
+    }
+
+    private static class Idle {
+        final Connection conn;
+        final long since = System.currentTimeMillis();
+
+        Idle(Connection conn) { this.conn = conn; }
+    }
+
+    // Opens the pool's connections up front so the first requests don't pay for the handshake
+    public static void init() throws SQLException {
+        checkDriver();
+        // Connections currently handed out count against the pool too
+        while (idle.size() < inUse.availablePermits()) {
+            idle.offer(new Idle(DriverManager.getConnection(URL, USER, PASSWORD)));
+        }
+    }
+
+    public static Connection getConnection() throws SQLException {
+        checkDriver();
+        try {
+            if (!inUse.tryAcquire(WAIT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + WAIT_MS + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            Idle entry;
+            while ((entry = idle.poll()) != null) {
+                if (System.currentTimeMillis() - entry.since < VALIDATE_AFTER_MS || entry.conn.isValid(1)) {
+                    return pooled(entry.conn);
+                }
+                closeQuietly(entry.conn);
+            }
+            return pooled(DriverManager.getConnection(URL, USER, PASSWORD));
+        } catch (SQLException | RuntimeException e) {
+            inUse.release();
+            throw e;
+        }
+    }
+
+    private static void checkDriver() throws SQLException {
+        if (driverError != null) {
+            throw new SQLException("MySQL Driver not found! Did you add the JAR file?", driverError);
+        }
+    }
+
+    public static int idleCount() {
+        return idle.size();
+    }
+
+    public static void shutdown() {
+        Idle entry;
+        while ((entry = idle.poll()) != null) {
+            closeQuietly(entry.conn);
+        }
+    }
+
+    private static void release(Connection conn) {
+        try {
+            if (!conn.isClosed()) {
+                if (!conn.getAutoCommit()) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+                idle.offer(new Idle(conn));
+                return;
+            }
+        } catch (SQLException e) {
+            // Broken connection, drop it
+            closeQuietly(conn);
+        } finally {
+            inUse.release();
         }
     }
-}
\ No newline at end of file
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // Handlers use try-with-resources on getConnection(), so close() on the returned
+    // connection puts the real one back in the pool. Statements the handlers leave open
+    // are closed at that point, as a real close() would have done.
+    private static Connection pooled(Connection conn) {
+        InvocationHandler handler = new InvocationHandler() {
+            private final List<Statement> statements = new ArrayList<>();
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            for (Statement s : statements) {
+                                try { s.close(); } catch (SQLException ignored) { }
+                            }
+                            statements.clear();
+                            release(conn);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || conn.isClosed();
+                    case "unwrap":
+                    case "isWrapperFor":
+                        break;
+                    default:
+                        if (closed) throw new SQLException("Connection is closed");
+                }
+                try {
+                    Object result = method.invoke(conn, args);
+                    if (result instanceof Statement) {
+                        statements.add((Statement) result);
+                        return timed(result, method.getReturnType());
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(db.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    // Adds the time spent in execute*() to the current request's DB time in the access log
+    private static Object timed(Object statement, Class<?> type) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            boolean execute = method.getName().startsWith("execute");
+            long start = execute ? System.nanoTime() : 0;
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (execute) RequestLog.addDbTime(System.nanoTime() - start);
+            }
+        };
+        return Proxy.newProxyInstance(db.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}
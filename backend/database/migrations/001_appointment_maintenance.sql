@@ -0,0 +1,37 @@
+-- Brings an existing beirutifade database up to date for the appointment maintenance job.
+-- Fresh installs get the same from beirutifade.sql. Safe to run more than once.
+-- Runs against the current database, so name the schema from db.url on the command line:
+--   mysql -u root -p <schema> < 001_appointment_maintenance.sql
+
+CREATE TABLE IF NOT EXISTS appointment_archive (
+    Id INT PRIMARY KEY,
+    CustomerId INT NOT NULL,
+    BarberId INT NOT NULL,
+    ServiceId INT NOT NULL,
+    AppointmentDate DATE NOT NULL,
+    AppointmentTime TIME NOT NULL,
+    Status ENUM('pending', 'confirmed', 'completed', 'cancelled') NOT NULL,
+    ArchivedAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_archive_customer (CustomerId),
+    INDEX idx_archive_barber (BarberId)
+);
+
+-- MySQL has no ADD INDEX IF NOT EXISTS, so only add the indexes that are missing
+SET @sql = IF(
+    (SELECT COUNT(*) FROM information_schema.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'appointment' AND INDEX_NAME = 'idx_appointment_barber_date') = 0,
+    'ALTER TABLE appointment ADD INDEX idx_appointment_barber_date (BarberId, AppointmentDate, Status)',
+    'SELECT 1');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF(
+    (SELECT COUNT(*) FROM information_schema.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'appointment' AND INDEX_NAME = 'idx_appointment_status_date') = 0,
+    'ALTER TABLE appointment ADD INDEX idx_appointment_status_date (Status, AppointmentDate)',
+    'SELECT 1');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -2,13 +2,23 @@ package backend.handlers;
 
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import backend.Config;
 import backend.database.db;
+import backend.cache.ResponseCache;
+import backend.cache.SingleFlight;
+import backend.logging.RequestLog;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.net.URLDecoder;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Set;
 
 public class AppointmentHandler implements HttpHandler {
+    private static final int AVAILABILITY_CACHE_DAYS = Config.getInt("cache.availabilityDays", 90);
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
@@ -25,39 +35,41 @@ public class AppointmentHandler implements HttpHandler {
             String appointmentTime = getValue(body, "appointmentTime");
 
             try (Connection conn = db.getConnection()) {
-                // Check if time slot is already booked (pending or confirmed)
-                String checkSql = "SELECT COUNT(*) as count FROM appointment WHERE BarberId = ? AND AppointmentDate = ? AND AppointmentTime = ? AND Status IN ('pending', 'confirmed')";
-                PreparedStatement checkStmt = conn.prepareStatement(checkSql);
-                checkStmt.setInt(1, barberId);
-                checkStmt.setString(2, appointmentDate);
-                checkStmt.setString(3, appointmentTime);
-                ResultSet checkRs = checkStmt.executeQuery();
-                checkRs.next();
-                int count = checkRs.getInt("count");
-                if (count > 0) {
-                    sendResponse(exchange, 409, "{\"error\": \"Time slot already booked for this barber on this date\"}");
-                    return;
+                // Check and insert in one transaction with the slot locked, so two concurrent
+                // bookings for the same barber, date and time (on any node) cannot both succeed
+                conn.setAutoCommit(false);
+                int appointmentId;
+                try {
+                    for (int attempt = 1; ; attempt++) {
+                        try {
+                            appointmentId = bookSlot(conn, customerId, barberId, serviceId, appointmentDate, appointmentTime);
+                            conn.commit();
+                            break;
+                        } catch (SQLTransactionRollbackException e) {
+                            // Two bookings racing for the same empty slot can deadlock on the gap
+                            // lock; InnoDB rolls one back and the retry sees the other's row
+                            conn.rollback();
+                            if (attempt == 3) throw e;
+                        }
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
                 }
 
-                String sql = "INSERT INTO appointment (CustomerId, BarberId, ServiceId, AppointmentDate, AppointmentTime, Status) VALUES (?, ?, ?, ?, ?, 'pending')";
-                PreparedStatement pstmt = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
-                pstmt.setInt(1, customerId);
-                pstmt.setInt(2, barberId);
-                pstmt.setInt(3, serviceId);
-                pstmt.setString(4, appointmentDate);
-                pstmt.setString(5, appointmentTime);
-
-                pstmt.executeUpdate();
-                ResultSet rs = pstmt.getGeneratedKeys();
-                
-                if (rs.next()) {
-                    int appointmentId = rs.getInt(1);
+                if (appointmentId == 0) {
+                    sendResponse(exchange, 409, "{\"error\": \"Time slot already booked for this barber on this date\"}");
+                } else if (appointmentId > 0) {
+                    ResponseCache.invalidate("availability:" + barberId);
                     String response = String.format("{\"success\": true, \"appointmentId\": %d}", appointmentId);
                     sendResponse(exchange, 200, response);
                 } else {
                     sendResponse(exchange, 500, "{\"error\": \"Failed to create appointment\"}");
                 }
             } catch (Exception e) {
+                RequestLog.error(e);
                 sendResponse(exchange, 500, "{\"error\": \"Server error: " + e.getMessage() + "\"}");
             }
         } else if (exchange.getRequestMethod().equalsIgnoreCase("GET")) {
@@ -76,34 +88,28 @@ public class AppointmentHandler implements HttpHandler {
                     date = URLDecoder.decode(query.split("date=")[1].split("&")[0], StandardCharsets.UTF_8);
                 }
 
-                System.out.println("DEBUG: Availability check - barberId: " + barberId + ", date: " + date);
-
-                try (Connection conn = db.getConnection()) {
-                    String sql = "SELECT AppointmentTime FROM appointment WHERE BarberId = ? AND AppointmentDate = ? AND Status IN ('pending', 'confirmed') ORDER BY AppointmentTime";
-                    PreparedStatement pstmt = conn.prepareStatement(sql);
-                    pstmt.setInt(1, barberId);
-                    pstmt.setString(2, date);
-                    ResultSet rs = pstmt.executeQuery();
-
-                    StringBuilder jsonArray = new StringBuilder("[");
-                    boolean first = true;
-                    while (rs.next()) {
-                        if (!first) jsonArray.append(",");
-                        // Get time and format as HH:MM (remove seconds if present)
-                        String timeStr = rs.getString("AppointmentTime");
-                        if (timeStr.length() > 5) {
-                            timeStr = timeStr.substring(0, 5); // Convert "09:00:00" to "09:00"
-                        }
-                        jsonArray.append(String.format("\"%s\"", timeStr));
-                        first = false;
-                    }
-                    jsonArray.append("]");
+                LocalDate day;
+                try {
+                    day = LocalDate.parse(date);
+                } catch (DateTimeParseException e) {
+                    sendResponse(exchange, 400, "{\"error\": \"Invalid date, expected YYYY-MM-DD\"}");
+                    return;
+                }
 
-                    String response = jsonArray.toString();
-                    System.out.println("DEBUG: Availability response: " + response);
-                    sendResponse(exchange, 200, response);
+                try {
+                    // Everyone asking for the same barber and day at once shares one query. Only the
+                    // bookable window is cached, so arbitrary dates cannot fill the cache.
+                    int flightBarberId = barberId;
+                    String flightDate = day.toString();
+                    String key = "availability:" + barberId + ":" + flightDate;
+                    LocalDate today = LocalDate.now();
+                    SingleFlight.Loader loader = () -> loadBookedTimes(flightBarberId, flightDate);
+                    SingleFlight.Result result = !day.isBefore(today) && !day.isAfter(today.plusDays(AVAILABILITY_CACHE_DAYS))
+                        ? ResponseCache.get("availability:" + barberId, key, loader)
+                        : SingleFlight.READS.execute(key, loader);
+                    sendResponse(exchange, result.code, result.body);
                 } catch (Exception e) {
-                    System.out.println("DEBUG: Availability error: " + e.getMessage());
+                    RequestLog.error(e);
                     sendResponse(exchange, 500, "{\"error\": \"Server error\"}");
                 }
                 return;
@@ -160,6 +166,7 @@ public class AppointmentHandler implements HttpHandler {
 
                 sendResponse(exchange, 200, jsonArray.toString());
             } catch (Exception e) {
+                RequestLog.error(e);
                 sendResponse(exchange, 500, "{\"error\": \"Server error\"}");
             }
         } else if (exchange.getRequestMethod().equalsIgnoreCase("PUT")) {
@@ -178,11 +185,16 @@ public class AppointmentHandler implements HttpHandler {
                 String appointmentTime = getValue(body, "appointmentTime");
 
                 try (Connection conn = db.getConnection()) {
+                    // Availability to drop once committed; the cancelled appointments may have been with another barber
+                    Set<Integer> affectedBarbers = new HashSet<>();
+                    affectedBarbers.add(barberId);
+
                     conn.setAutoCommit(false);
                     try {
                         // Cancel existing appointments
                         if (appointmentIdsStr != null && !appointmentIdsStr.isEmpty()) {
                             String[] ids = appointmentIdsStr.split(",");
+                            affectedBarbers.addAll(barberIdsOf(conn, ids));
                             String cancelSql = "UPDATE appointment SET Status = 'cancelled' WHERE Id = ?";
                             PreparedStatement cancelStmt = conn.prepareStatement(cancelSql);
                             for (String idStr : ids) {
@@ -213,15 +225,23 @@ public class AppointmentHandler implements HttpHandler {
                         }
 
                         conn.commit();
-                        String response = "{\"success\": true, \"message\": \"Appointments rescheduled and set to pending\"}";
-                        sendResponse(exchange, 200, response);
                     } catch (Exception inner) {
                         conn.rollback();
+                        RequestLog.error(inner);
                         sendResponse(exchange, 500, "{\"error\": \"Server error: " + inner.getMessage() + "\"}");
+                        return;
                     } finally {
                         conn.setAutoCommit(true);
                     }
+
+                    // Committed; from here on nothing may turn the response into an error
+                    for (int affected : affectedBarbers) {
+                        ResponseCache.invalidate("availability:" + affected);
+                    }
+                    String response = "{\"success\": true, \"message\": \"Appointments rescheduled and set to pending\"}";
+                    sendResponse(exchange, 200, response);
                 } catch (Exception e) {
+                    RequestLog.error(e);
                     sendResponse(exchange, 500, "{\"error\": \"Server error: " + e.getMessage() + "\"}");
                 }
             } else if (path.contains("/reschedule")) {
@@ -231,6 +251,9 @@ public class AppointmentHandler implements HttpHandler {
                 String appointmentTime = getValue(body, "appointmentTime");
 
                 try (Connection conn = db.getConnection()) {
+                    // Looked up before the write so nothing after it can fail the request
+                    int appointmentBarberId = barberIdOf(conn, appointmentId);
+
                     // When rescheduling, reset status to 'pending' so barber must re-accept
                     String sql = "UPDATE appointment SET AppointmentDate = ?, AppointmentTime = ?, Status = 'pending' WHERE Id = ?";
                     PreparedStatement pstmt = conn.prepareStatement(sql);
@@ -241,12 +264,14 @@ public class AppointmentHandler implements HttpHandler {
                     int rowsUpdated = pstmt.executeUpdate();
                     
                     if (rowsUpdated > 0) {
+                        ResponseCache.invalidate("availability:" + appointmentBarberId);
                         String response = "{\"success\": true, \"message\": \"Appointment rescheduled and set to pending\"}";
                         sendResponse(exchange, 200, response);
                     } else {
                         sendResponse(exchange, 404, "{\"error\": \"Appointment not found\"}");
                     }
                 } catch (Exception e) {
+                    RequestLog.error(e);
                     sendResponse(exchange, 500, "{\"error\": \"Server error: " + e.getMessage() + "\"}");
                 }
             } else {
@@ -255,6 +280,9 @@ public class AppointmentHandler implements HttpHandler {
                 String status = getValue(body, "status");
 
                 try (Connection conn = db.getConnection()) {
+                    // Looked up before the write so nothing after it can fail the request
+                    int appointmentBarberId = barberIdOf(conn, appointmentId);
+
                     String sql = "UPDATE appointment SET Status = ? WHERE Id = ?";
                     PreparedStatement pstmt = conn.prepareStatement(sql);
                     pstmt.setString(1, status);
@@ -263,12 +291,14 @@ public class AppointmentHandler implements HttpHandler {
                     int rowsUpdated = pstmt.executeUpdate();
                     
                     if (rowsUpdated > 0) {
+                        ResponseCache.invalidate("availability:" + appointmentBarberId);
                         String response = String.format("{\"success\": true, \"message\": \"Appointment status updated to %s\"}", status);
                         sendResponse(exchange, 200, response);
                     } else {
                         sendResponse(exchange, 404, "{\"error\": \"Appointment not found\"}");
                     }
                 } catch (Exception e) {
+                    RequestLog.error(e);
                     sendResponse(exchange, 500, "{\"error\": \"Server error: " + e.getMessage() + "\"}");
                 }
             }
@@ -277,6 +307,84 @@ public class AppointmentHandler implements HttpHandler {
         }
     }
 
+    // Returns the new appointment id, 0 if the slot is already taken, or -1 if no id came back.
+    // Must run inside a transaction: FOR UPDATE locks the slot (or the gap where it would go)
+    // until commit.
+    private int bookSlot(Connection conn, int customerId, int barberId, int serviceId, String appointmentDate, String appointmentTime) throws SQLException {
+        // Check if time slot is already booked (pending or confirmed)
+        String checkSql = "SELECT Id FROM appointment WHERE BarberId = ? AND AppointmentDate = ? AND AppointmentTime = ? AND Status IN ('pending', 'confirmed') FOR UPDATE";
+        PreparedStatement checkStmt = conn.prepareStatement(checkSql);
+        checkStmt.setInt(1, barberId);
+        checkStmt.setString(2, appointmentDate);
+        checkStmt.setString(3, appointmentTime);
+        if (checkStmt.executeQuery().next()) {
+            return 0;
+        }
+
+        String sql = "INSERT INTO appointment (CustomerId, BarberId, ServiceId, AppointmentDate, AppointmentTime, Status) VALUES (?, ?, ?, ?, ?, 'pending')";
+        PreparedStatement pstmt = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+        pstmt.setInt(1, customerId);
+        pstmt.setInt(2, barberId);
+        pstmt.setInt(3, serviceId);
+        pstmt.setString(4, appointmentDate);
+        pstmt.setString(5, appointmentTime);
+
+        pstmt.executeUpdate();
+        ResultSet rs = pstmt.getGeneratedKeys();
+        return rs.next() ? rs.getInt(1) : -1;
+    }
+
+    // Availability is cached per barber, so writes made by appointment id look up its barber
+    private int barberIdOf(Connection conn, int appointmentId) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement("SELECT BarberId FROM appointment WHERE Id = ?");
+        pstmt.setInt(1, appointmentId);
+        ResultSet rs = pstmt.executeQuery();
+        return rs.next() ? rs.getInt("BarberId") : 0;
+    }
+
+    private Set<Integer> barberIdsOf(Connection conn, String[] appointmentIds) throws SQLException {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < appointmentIds.length; i++) {
+            in.append(i == 0 ? "?" : ", ?");
+        }
+        PreparedStatement pstmt = conn.prepareStatement("SELECT DISTINCT BarberId FROM appointment WHERE Id IN (" + in + ")");
+        for (int i = 0; i < appointmentIds.length; i++) {
+            pstmt.setInt(i + 1, Integer.parseInt(appointmentIds[i].trim()));
+        }
+        ResultSet rs = pstmt.executeQuery();
+        Set<Integer> barberIds = new HashSet<>();
+        while (rs.next()) {
+            barberIds.add(rs.getInt("BarberId"));
+        }
+        return barberIds;
+    }
+
+    private SingleFlight.Result loadBookedTimes(int barberId, String date) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            String sql = "SELECT AppointmentTime FROM appointment WHERE BarberId = ? AND AppointmentDate = ? AND Status IN ('pending', 'confirmed') ORDER BY AppointmentTime";
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            pstmt.setInt(1, barberId);
+            pstmt.setString(2, date);
+            ResultSet rs = pstmt.executeQuery();
+
+            StringBuilder jsonArray = new StringBuilder("[");
+            boolean first = true;
+            while (rs.next()) {
+                if (!first) jsonArray.append(",");
+                // Get time and format as HH:MM (remove seconds if present)
+                String timeStr = rs.getString("AppointmentTime");
+                if (timeStr.length() > 5) {
+                    timeStr = timeStr.substring(0, 5); // Convert "09:00:00" to "09:00"
+                }
+                jsonArray.append(String.format("\"%s\"", timeStr));
+                first = false;
+            }
+            jsonArray.append("]");
+
+            return new SingleFlight.Result(200, jsonArray.toString());
+        }
+    }
+
     private String getValue(String body, String key) {
         try {
             String raw = body.split(key + "=")[1].split("&")[0];
@@ -285,10 +393,14 @@ public class AppointmentHandler implements HttpHandler {
     }
 
     private void sendResponse(HttpExchange exchange, int code, String response) throws IOException {
+        sendResponse(exchange, code, response.getBytes());
+    }
+
+    private void sendResponse(HttpExchange exchange, int code, byte[] response) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(code, response.getBytes().length);
+        exchange.sendResponseHeaders(code, response.length);
         OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
+        os.write(response);
         os.close();
     }
 }
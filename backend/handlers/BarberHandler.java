@@ -3,6 +3,9 @@ package backend.handlers;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
 import backend.database.db;
+import backend.cache.ResponseCache;
+import backend.cache.SingleFlight;
+import backend.logging.RequestLog;
 import java.io.*;
 import java.sql.*;
 
@@ -13,7 +16,7 @@ public class BarberHandler implements HttpHandler {
         exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
 
         if (exchange.getRequestMethod().equalsIgnoreCase("GET")) {
-            try (Connection conn = db.getConnection()) {
+            try {
                 String query = exchange.getRequestURI().getQuery();
                 Integer id = null;
                 if (query != null) {
@@ -25,52 +28,16 @@ public class BarberHandler implements HttpHandler {
                     }
                 }
 
-                if (id != null) {
-                    String sql = "SELECT Id, FullName, Bio, Email, ImageUrl FROM barber WHERE Id = ?";
-                    PreparedStatement pstmt = conn.prepareStatement(sql);
-                    pstmt.setInt(1, id);
-                    ResultSet rs = pstmt.executeQuery();
-                    if (rs.next()) {
-                        String imageUrl = rs.getString("ImageUrl");
-                        String imageUrlJson = (imageUrl != null && !imageUrl.isEmpty()) 
-                            ? String.format(", \"imageUrl\": \"%s\"", imageUrl)
-                            : "";
-                        String response = String.format(
-                            "{\"id\": %d, \"name\": \"%s\", \"bio\": \"%s\", \"email\": \"%s\"%s}",
-                            rs.getInt("Id"), rs.getString("FullName"), rs.getString("Bio") != null ? rs.getString("Bio") : "", rs.getString("Email") != null ? rs.getString("Email") : "", imageUrlJson
-                        );
-                        sendResponse(exchange, 200, response);
-                    } else {
-                        sendResponse(exchange, 404, "{\"error\": \"Barber not found\"}");
-                    }
-                } else {
-                    String sql = "SELECT Id, FullName, Bio, ImageUrl FROM barber";
-                    PreparedStatement pstmt = conn.prepareStatement(sql);
-                    ResultSet rs = pstmt.executeQuery();
-
-                    StringBuilder jsonArray = new StringBuilder("[");
-                    boolean first = true;
-
-                    while (rs.next()) {
-                        if (!first) jsonArray.append(",");
-                        String imageUrl = rs.getString("ImageUrl");
-                        String imageUrlJson = (imageUrl != null && !imageUrl.isEmpty()) 
-                            ? String.format(", \"imageUrl\": \"%s\"", imageUrl)
-                            : "";
-                        jsonArray.append(String.format(
-                            "{\"id\": %d, \"name\": \"%s\", \"bio\": \"%s\"%s}",
-                            rs.getInt("Id"),
-                            rs.getString("FullName"),
-                            rs.getString("Bio") != null ? rs.getString("Bio") : "",
-                            imageUrlJson
-                        ));
-                        first = false;
-                    }
-                    jsonArray.append("]");
-
-                    sendResponse(exchange, 200, jsonArray.toString());
-                }
+                // Served from the cache; identical concurrent misses share one query and one response buffer
+                Integer barberId = id;
+                SingleFlight.Result result = ResponseCache.get(
+                    "barbers",
+                    barberId != null ? "barber:" + barberId : "barbers",
+                    () -> barberId != null ? loadBarber(barberId) : loadBarbers()
+                );
+                sendResponse(exchange, result.code, result.body);
             } catch (Exception e) {
+                RequestLog.error(e);
                 sendResponse(exchange, 500, "{\"error\": \"Server error\"}");
             }
         } else {
@@ -78,11 +45,66 @@ public class BarberHandler implements HttpHandler {
         }
     }
 
+    private SingleFlight.Result loadBarber(int id) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            String sql = "SELECT Id, FullName, Bio, Email, ImageUrl FROM barber WHERE Id = ?";
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            pstmt.setInt(1, id);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                String imageUrl = rs.getString("ImageUrl");
+                String imageUrlJson = (imageUrl != null && !imageUrl.isEmpty()) 
+                    ? String.format(", \"imageUrl\": \"%s\"", imageUrl)
+                    : "";
+                String response = String.format(
+                    "{\"id\": %d, \"name\": \"%s\", \"bio\": \"%s\", \"email\": \"%s\"%s}",
+                    rs.getInt("Id"), rs.getString("FullName"), rs.getString("Bio") != null ? rs.getString("Bio") : "", rs.getString("Email") != null ? rs.getString("Email") : "", imageUrlJson
+                );
+                return new SingleFlight.Result(200, response);
+            }
+            return new SingleFlight.Result(404, "{\"error\": \"Barber not found\"}");
+        }
+    }
+
+    private SingleFlight.Result loadBarbers() throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            String sql = "SELECT Id, FullName, Bio, ImageUrl FROM barber";
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            ResultSet rs = pstmt.executeQuery();
+
+            StringBuilder jsonArray = new StringBuilder("[");
+            boolean first = true;
+
+            while (rs.next()) {
+                if (!first) jsonArray.append(",");
+                String imageUrl = rs.getString("ImageUrl");
+                String imageUrlJson = (imageUrl != null && !imageUrl.isEmpty()) 
+                    ? String.format(", \"imageUrl\": \"%s\"", imageUrl)
+                    : "";
+                jsonArray.append(String.format(
+                    "{\"id\": %d, \"name\": \"%s\", \"bio\": \"%s\"%s}",
+                    rs.getInt("Id"),
+                    rs.getString("FullName"),
+                    rs.getString("Bio") != null ? rs.getString("Bio") : "",
+                    imageUrlJson
+                ));
+                first = false;
+            }
+            jsonArray.append("]");
+
+            return new SingleFlight.Result(200, jsonArray.toString());
+        }
+    }
+
     private void sendResponse(HttpExchange exchange, int code, String response) throws IOException {
+        sendResponse(exchange, code, response.getBytes());
+    }
+
+    private void sendResponse(HttpExchange exchange, int code, byte[] response) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(code, response.getBytes().length);
+        exchange.sendResponseHeaders(code, response.length);
         OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
+        os.write(response);
         os.close();
     }
 }
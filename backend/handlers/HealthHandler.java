@@ -0,0 +1,60 @@
+package backend.handlers;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpExchange;
+import backend.database.db;
+import backend.cache.ResponseCache;
+import backend.cache.SingleFlight;
+import backend.logging.RequestLog;
+import java.io.*;
+
+public class HealthHandler implements HttpHandler {
+    // Flipped on once startup (pool + warm-up) is done, and off again while shutting down
+    private static volatile boolean ready = false;
+
+    public static void setReady(boolean value) {
+        ready = value;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+
+        if (exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            String path = exchange.getRequestURI().getPath();
+
+            if (path.contains("/metrics")) {
+                SingleFlight reads = SingleFlight.READS;
+                long requests = reads.requestCount();
+                long coalesced = reads.coalescedCount();
+                long hits = ResponseCache.hitCount();
+                long lookups = hits + ResponseCache.missCount();
+                String response = String.format(
+                    "{\"coalescing\": {\"requests\": %d, \"coalesced\": %d, \"hitRatio\": %.4f, \"inFlight\": %d}, " +
+                    "\"cache\": {\"lookups\": %d, \"hits\": %d, \"hitRatio\": %.4f, \"entries\": %d}, " +
+                    "\"log\": {\"dropped\": %d}}",
+                    requests, coalesced, requests == 0 ? 0.0 : (double) coalesced / requests, reads.inFlightCount(),
+                    lookups, hits, lookups == 0 ? 0.0 : (double) hits / lookups, ResponseCache.size(),
+                    RequestLog.droppedCount()
+                );
+                sendResponse(exchange, 200, response);
+            } else if (path.contains("/ready")) {
+                // Load balancers should only route here once this returns 200
+                String response = String.format("{\"ready\": %b, \"idleConnections\": %d}", ready, db.idleCount());
+                sendResponse(exchange, ready ? 200 : 503, response);
+            } else {
+                sendResponse(exchange, 200, "{\"status\": \"up\"}");
+            }
+        } else {
+            exchange.sendResponseHeaders(405, -1);
+        }
+    }
+
+    private void sendResponse(HttpExchange exchange, int code, String response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, response.getBytes().length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(response.getBytes());
+        os.close();
+    }
+}
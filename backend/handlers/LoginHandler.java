@@ -3,6 +3,7 @@ package backend.handlers;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
 import backend.database.db;
+import backend.logging.RequestLog;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.net.URLDecoder;
@@ -55,6 +56,7 @@ public class LoginHandler implements HttpHandler {
                     sendResponse(exchange, 401, "{\"error\": \"Invalid credentials\"}");
                 }
             } catch (Exception e) {
+                RequestLog.error(e);
                 sendResponse(exchange, 500, "{\"error\": \"Server error\"}");
             }
         } else {
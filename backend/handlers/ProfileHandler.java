@@ -3,6 +3,8 @@ package backend.handlers;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
 import backend.database.db;
+import backend.cache.ResponseCache;
+import backend.logging.RequestLog;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.net.URLDecoder;
@@ -54,6 +56,7 @@ public class ProfileHandler implements HttpHandler {
                     sendResponse(exchange, 404, "{\"error\": \"User not found\"}");
                 }
             } catch (Exception e) {
+                RequestLog.error(e);
                 sendResponse(exchange, 500, "{\"error\": \"Server error\"}");
             }
             return;
@@ -105,11 +108,15 @@ public class ProfileHandler implements HttpHandler {
 
                 int updated = pstmt.executeUpdate();
                 if (updated > 0) {
+                    if (type.equals("barber")) {
+                        ResponseCache.invalidate("barbers");
+                    }
                     sendResponse(exchange, 200, "{\"message\": \"Profile updated\"}");
                 } else {
                     sendResponse(exchange, 404, "{\"error\": \"User not found\"}");
                 }
             } catch (Exception e) {
+                RequestLog.error(e);
                 sendResponse(exchange, 500, "{\"error\": \"Server error\"}");
             }
         } else {
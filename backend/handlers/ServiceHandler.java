@@ -3,6 +3,9 @@ package backend.handlers;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
 import backend.database.db;
+import backend.cache.ResponseCache;
+import backend.cache.SingleFlight;
+import backend.logging.RequestLog;
 import java.io.*;
 import java.sql.*;
 
@@ -14,34 +17,11 @@ public class ServiceHandler implements HttpHandler {
         exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
 
         if (exchange.getRequestMethod().equalsIgnoreCase("GET")) {
-            try (Connection conn = db.getConnection()) {
-                String sql = "SELECT Id, Name, Description, Price, ImageUrl FROM service";
-                PreparedStatement pstmt = conn.prepareStatement(sql);
-                ResultSet rs = pstmt.executeQuery();
-
-                StringBuilder jsonArray = new StringBuilder("[");
-                boolean first = true;
-
-                while (rs.next()) {
-                    if (!first) jsonArray.append(",");
-                    String imageUrl = rs.getString("ImageUrl");
-                    String imageUrlJson = (imageUrl != null && !imageUrl.isEmpty()) 
-                        ? String.format(", \"imageUrl\": \"%s\"", imageUrl)
-                        : "";
-                    jsonArray.append(String.format(
-                        "{\"id\": %d, \"name\": \"%s\", \"description\": \"%s\", \"price\": %.2f%s}",
-                        rs.getInt("Id"),
-                        rs.getString("Name"),
-                        rs.getString("Description"),
-                        rs.getDouble("Price"),
-                        imageUrlJson
-                    ));
-                    first = false;
-                }
-                jsonArray.append("]");
-
-                sendResponse(exchange, 200, jsonArray.toString());
+            try {
+                SingleFlight.Result result = ResponseCache.get("services", "services", this::loadServices);
+                sendResponse(exchange, result.code, result.body);
             } catch (Exception e) {
+                RequestLog.error(e);
                 sendResponse(exchange, 500, "{\"error\": \"Server error\"}");
             }
         } else {
@@ -49,11 +29,46 @@ public class ServiceHandler implements HttpHandler {
         }
     }
 
+    private SingleFlight.Result loadServices() throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            String sql = "SELECT Id, Name, Description, Price, ImageUrl FROM service";
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            ResultSet rs = pstmt.executeQuery();
+
+            StringBuilder jsonArray = new StringBuilder("[");
+            boolean first = true;
+
+            while (rs.next()) {
+                if (!first) jsonArray.append(",");
+                String imageUrl = rs.getString("ImageUrl");
+                String imageUrlJson = (imageUrl != null && !imageUrl.isEmpty()) 
+                    ? String.format(", \"imageUrl\": \"%s\"", imageUrl)
+                    : "";
+                jsonArray.append(String.format(
+                    "{\"id\": %d, \"name\": \"%s\", \"description\": \"%s\", \"price\": %.2f%s}",
+                    rs.getInt("Id"),
+                    rs.getString("Name"),
+                    rs.getString("Description"),
+                    rs.getDouble("Price"),
+                    imageUrlJson
+                ));
+                first = false;
+            }
+            jsonArray.append("]");
+
+            return new SingleFlight.Result(200, jsonArray.toString());
+        }
+    }
+
     private void sendResponse(HttpExchange exchange, int code, String response) throws IOException {
+        sendResponse(exchange, code, response.getBytes());
+    }
+
+    private void sendResponse(HttpExchange exchange, int code, byte[] response) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(code, response.getBytes().length);
+        exchange.sendResponseHeaders(code, response.length);
         OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
+        os.write(response);
         os.close();
     }
 }
@@ -3,6 +3,8 @@ package backend.handlers;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
 import backend.database.db;
+import backend.cache.ResponseCache;
+import backend.logging.RequestLog;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.net.URLDecoder;
@@ -36,8 +38,12 @@ public class SignupHandler implements HttpHandler {
                 pstmt.setString(4, password);
 
                 pstmt.executeUpdate();
+                if (type.equals("barber")) {
+                    ResponseCache.invalidate("barbers");
+                }
                 sendResponse(exchange, 201, "{\"message\": \"Registration successful\"}");
             } catch (Exception e) {
+                RequestLog.error(e);
                 sendResponse(exchange, 500, "{\"error\": \"" + e.getMessage() + "\"}");
             }
         } else {
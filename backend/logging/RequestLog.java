@@ -0,0 +1,228 @@
+package backend.logging;
+
+import backend.Config;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Access and error log. Request threads only fill in a small Entry and drop it into a
+// fixed-size ring buffer; a single background thread formats the entries as JSON lines
+// and writes them to logs/access.log, rotating it by size. When the buffer is full the
+// entry is dropped and counted rather than making the request wait.
+public class RequestLog {
+
+    private static final boolean ENABLED = Config.getBoolean("log.enabled", true);
+    private static final Path DIR = Paths.get(Config.getString("log.dir", "logs"));
+    private static final long MAX_FILE_BYTES = Config.getInt("log.maxFileMB", 10) * 1024L * 1024L;
+    private static final int MAX_FILES = Config.getInt("log.maxFiles", 5);
+    // Share of normal requests written; errors and slow requests are always written
+    private static final double SAMPLE_RATE = Config.getDouble("log.sampleRate", 1.0);
+    private static final long SLOW_NANOS = Config.getInt("log.slowMs", 500) * 1_000_000L;
+
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(2, Config.getInt("log.bufferSize", 8192)));
+    private static final int MASK = CAPACITY - 1;
+    private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(CAPACITY);
+    // tail: next sequence a producer claims; head: next sequence the writer reads
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong head = new AtomicLong();
+    private static final LongAdder dropped = new LongAdder();
+
+    private static final ThreadLocal<Context> current = new ThreadLocal<>();
+
+    private static volatile Thread writer;
+    private static volatile boolean running;
+
+    private static class Context {
+        long dbNanos;
+        Throwable error;
+    }
+
+    private static class Entry {
+        long timestamp;
+        String method;
+        String route;
+        int status;
+        long latencyNanos;
+        long dbNanos;
+        Throwable error;
+    }
+
+    public static synchronized void start() {
+        if (!ENABLED || writer != null) return;
+        running = true;
+        writer = new Thread(RequestLog::drainLoop, "request-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Writes out whatever is still buffered before returning
+    public static synchronized void stop() {
+        if (writer == null) return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    public static void begin() {
+        current.set(new Context());
+    }
+
+    // Called by the pooled connections around every statement execution
+    public static void addDbTime(long nanos) {
+        Context context = current.get();
+        if (context != null) context.dbNanos += nanos;
+    }
+
+    // Called by handlers when they turn an exception into an error response
+    public static void error(Throwable error) {
+        Context context = current.get();
+        if (context != null) context.error = error;
+    }
+
+    public static void end(String method, String route, int status, long latencyNanos) {
+        Context context = current.get();
+        current.remove();
+        if (writer == null || context == null) return;
+
+        boolean important = status >= 500 || status < 0 || context.error != null || latencyNanos >= SLOW_NANOS;
+        if (!important && SAMPLE_RATE < 1.0 && ThreadLocalRandom.current().nextDouble() >= SAMPLE_RATE) return;
+
+        Entry entry = new Entry();
+        entry.timestamp = System.currentTimeMillis();
+        entry.method = method;
+        entry.route = route;
+        entry.status = status;
+        entry.latencyNanos = latencyNanos;
+        entry.dbNanos = context.dbNanos;
+        entry.error = context.error;
+        offer(entry);
+    }
+
+    public static long droppedCount() {
+        return dropped.sum();
+    }
+
+    private static void offer(Entry entry) {
+        // Claim a slot only if the writer has freed it, so the writer never meets a gap
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head.get() >= CAPACITY) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+        ring.set((int) (seq & MASK), entry);
+    }
+
+    private static void drainLoop() {
+        BufferedWriter out = null;
+        long size = 0;
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            boolean stopping = !running;
+            try {
+                long seq = head.get();
+                Entry entry;
+                // A claimed slot may still be null for a moment; it is picked up on the next pass
+                while ((entry = ring.get((int) (seq & MASK))) != null) {
+                    ring.set((int) (seq & MASK), null);
+                    head.set(++seq);
+
+                    if (out == null || size >= MAX_FILE_BYTES) {
+                        if (out != null) out.close();
+                        out = open(out != null);
+                        size = Files.size(DIR.resolve("access.log"));
+                    }
+                    line.setLength(0);
+                    format(entry, line);
+                    out.write(line.toString());
+                    size += line.length();
+                }
+                if (out != null) out.flush();
+            } catch (IOException e) {
+                // Disk trouble must not take the server down; drop the file and retry later
+                System.out.println("Request log write failed: " + e.getMessage());
+                try { if (out != null) out.close(); } catch (IOException ignored) { }
+                out = null;
+            }
+            if (stopping) break;
+            LockSupport.parkNanos(100_000_000L);
+        }
+        try { if (out != null) out.close(); } catch (IOException ignored) { }
+    }
+
+    private static BufferedWriter open(boolean rotate) throws IOException {
+        Files.createDirectories(DIR);
+        Path log = DIR.resolve("access.log");
+        if (rotate || (Files.exists(log) && Files.size(log) >= MAX_FILE_BYTES)) {
+            // access.log -> access.log.1 -> ... -> access.log.<MAX_FILES>, oldest dropped
+            for (int i = MAX_FILES - 1; i >= 1; i--) {
+                Path from = DIR.resolve("access.log." + i);
+                if (Files.exists(from)) {
+                    Files.move(from, DIR.resolve("access.log." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (Files.exists(log)) {
+                Files.move(log, DIR.resolve("access.log.1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return Files.newBufferedWriter(log, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void format(Entry entry, StringBuilder line) {
+        line.append("{\"time\": \"").append(Instant.ofEpochMilli(entry.timestamp)).append('"');
+        line.append(", \"method\": \"");
+        escape(entry.method, line);
+        line.append('"');
+        line.append(", \"route\": \"");
+        escape(entry.route, line);
+        line.append("\", \"status\": ").append(entry.status);
+        line.append(", \"latencyMs\": ").append(entry.latencyNanos / 1000 / 1000.0);
+        line.append(", \"dbMs\": ").append(entry.dbNanos / 1000 / 1000.0);
+        if (entry.error != null) {
+            line.append(", \"error\": \"");
+            escape(entry.error.toString(), line);
+            line.append('"');
+            // Where it was thrown from in our code, so a 500 can be traced without a stack dump
+            for (StackTraceElement frame : entry.error.getStackTrace()) {
+                if (frame.getClassName().startsWith("backend.")) {
+                    line.append(", \"at\": \"");
+                    escape(frame.toString(), line);
+                    line.append('"');
+                    break;
+                }
+            }
+        }
+        line.append("}\n");
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package backend.logging;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+
+// Added to every context in MainServer: times the request and hands it to RequestLog
+public class RequestLogFilter extends Filter {
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        long start = System.nanoTime();
+        RequestLog.begin();
+        try {
+            chain.doFilter(exchange);
+        } catch (IOException | RuntimeException e) {
+            // Escaped the handler entirely (e.g. a malformed number); status stays -1
+            RequestLog.error(e);
+            throw e;
+        } finally {
+            RequestLog.end(
+                exchange.getRequestMethod(),
+                exchange.getRequestURI().getPath(),
+                exchange.getResponseCode(),
+                System.nanoTime() - start
+            );
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Structured access/error log";
+    }
+}
@@ -0,0 +1,128 @@
+package backend.maintenance;
+
+import backend.Config;
+import backend.database.db;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the appointment table small: closes out appointments whose slot has passed
+// and moves old finished rows into appointment_archive. Work is done in small batches
+// with a pause in between so the handlers never wait long on row locks.
+public class AppointmentMaintenance implements Runnable {
+
+    private static final int BATCH_SIZE = Config.getInt("maintenance.batchSize", 200);
+    private static final long BATCH_PAUSE_MS = Config.getInt("maintenance.batchPauseMs", 250);
+    private static final int RETENTION_DAYS = Config.getInt("maintenance.retentionDays", 180);
+    private static final long INTERVAL_MINUTES = Config.getInt("maintenance.intervalMinutes", 15);
+
+    // A slot is in the past if its day is over, or it is today and its time has gone by
+    private static final String PAST_SLOT = "(AppointmentDate < CURDATE() OR (AppointmentDate = CURDATE() AND AppointmentTime < CURTIME()))";
+
+    private ScheduledExecutorService scheduler;
+
+    public synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "appointment-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this, 1, INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Confirmed slots that have passed took place; pending ones were never accepted
+            int completed = transitionPast("confirmed", "completed");
+            int cancelled = transitionPast("pending", "cancelled");
+            int archived = archiveOld();
+            if (completed + cancelled + archived > 0) {
+                System.out.println("Maintenance: completed " + completed + ", cancelled " + cancelled + ", archived " + archived + " appointments");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Never let one failed run cancel the schedule
+            System.out.println("Maintenance error: " + e.getMessage());
+        }
+    }
+
+    private int transitionPast(String from, String to) throws SQLException, InterruptedException {
+        String sql = "UPDATE appointment SET Status = ? WHERE Status = ? AND " + PAST_SLOT + " LIMIT ?";
+        int total = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int updated;
+            try (Connection conn = db.getConnection()) {
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                pstmt.setString(1, to);
+                pstmt.setString(2, from);
+                pstmt.setInt(3, BATCH_SIZE);
+                updated = pstmt.executeUpdate();
+            }
+            total += updated;
+            if (updated < BATCH_SIZE) break;
+            Thread.sleep(BATCH_PAUSE_MS);
+        }
+        return total;
+    }
+
+    private int archiveOld() throws SQLException, InterruptedException {
+        String selectSql = "SELECT Id FROM appointment WHERE Status IN ('completed', 'cancelled') AND AppointmentDate < DATE_SUB(CURDATE(), INTERVAL ? DAY) ORDER BY Id LIMIT ?";
+        int total = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int moved;
+            try (Connection conn = db.getConnection()) {
+                List<Integer> ids = new ArrayList<>();
+                PreparedStatement select = conn.prepareStatement(selectSql);
+                select.setInt(1, RETENTION_DAYS);
+                select.setInt(2, BATCH_SIZE);
+                ResultSet rs = select.executeQuery();
+                while (rs.next()) {
+                    ids.add(rs.getInt("Id"));
+                }
+                if (ids.isEmpty()) break;
+
+                StringBuilder in = new StringBuilder();
+                for (int i = 0; i < ids.size(); i++) {
+                    in.append(i == 0 ? "?" : ", ?");
+                }
+
+                // Copy and delete in one short transaction so a row is never in both tables
+                conn.setAutoCommit(false);
+                try {
+                    PreparedStatement copy = conn.prepareStatement(
+                        "INSERT INTO appointment_archive (Id, CustomerId, BarberId, ServiceId, AppointmentDate, AppointmentTime, Status) " +
+                        "SELECT Id, CustomerId, BarberId, ServiceId, AppointmentDate, AppointmentTime, Status FROM appointment WHERE Id IN (" + in + ")");
+                    PreparedStatement delete = conn.prepareStatement("DELETE FROM appointment WHERE Id IN (" + in + ")");
+                    for (int i = 0; i < ids.size(); i++) {
+                        copy.setInt(i + 1, ids.get(i));
+                        delete.setInt(i + 1, ids.get(i));
+                    }
+                    copy.executeUpdate();
+                    moved = delete.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+            total += moved;
+            if (moved < BATCH_SIZE) break;
+            Thread.sleep(BATCH_PAUSE_MS);
+        }
+        return total;
+    }
+}
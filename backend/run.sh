@@ -0,0 +1,37 @@
+#!/bin/sh
+# Builds and starts the backend from the repository root.
+#
+# The first run after a code change trains an AppCDS archive (backend/out/app.jsa) by
+# running the startup warm-up once with --warmup-only; later runs map that archive so
+# the JVM skips most class loading and verification at start.
+set -e
+
+cd "$(dirname "$0")/.."
+
+OUT=backend/out
+JAR="$OUT/backend.jar"
+JSA="$OUT/app.jsa"
+CP="$JAR:backend/lib/mysql-connector-j-9.5.0.jar"
+
+# CDS only archives classes from jars and rejects the archive if the jar changes,
+# so rebuild (and retrain) only when a source file is newer than the jar
+if [ ! -f "$JAR" ] || [ -n "$(find backend -name '*.java' -newer "$JAR")" ]; then
+    rm -rf "$OUT/classes" "$JSA"
+    mkdir -p "$OUT/classes"
+    javac -d "$OUT/classes" -cp backend/lib/mysql-connector-j-9.5.0.jar $(find backend -name '*.java')
+    jar cf "$JAR" -C "$OUT/classes" .
+fi
+
+# Only keep an archive from a run whose warm-up actually reached the database; otherwise
+# it would hold little more than startup classes and be reused until the code changes
+if [ ! -f "$JSA" ]; then
+    if ! java -XX:ArchiveClassesAtExit="$JSA" -cp "$CP" backend.MainServer --warmup-only; then
+        echo "Warm-up failed, starting without a CDS archive (it will be trained on the next start)"
+        rm -f "$JSA"
+    fi
+fi
+
+if [ -f "$JSA" ]; then
+    exec java -XX:SharedArchiveFile="$JSA" -Xshare:auto -cp "$CP" backend.MainServer "$@"
+fi
+exec java -cp "$CP" backend.MainServer "$@"
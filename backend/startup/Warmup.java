@@ -0,0 +1,110 @@
+package backend.startup;
+
+import backend.cache.ResponseCache;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// Drives the read-only routes in-process before the port is bound, so class loading,
+// the JIT and the connection pool are warm when the first real client shows up.
+public class Warmup {
+
+    private static final String[] REQUESTS = {
+        "/services",
+        "/barbers",
+        "/barbers?id=1",
+        "/appointment/availability?barberId=1&date=" + LocalDate.now(),
+        "/appointment?customerId=1",
+        "/appointment?barberId=1",
+        "/profile?id=1&type=customer"
+    };
+
+    private final Map<String, HttpHandler> routes;
+
+    public Warmup(Map<String, HttpHandler> routes) {
+        this.routes = routes;
+    }
+
+    // Returns how many requests got a non-5xx answer, mostly to tell a dead database apart
+    public int run(int iterations) {
+        // Go past the response cache, otherwise only the first pass would reach JDBC
+        ResponseCache.setBypass(true);
+        try {
+            return runRequests(iterations);
+        } finally {
+            ResponseCache.setBypass(false);
+        }
+    }
+
+    private int runRequests(int iterations) {
+        int ok = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (String request : REQUESTS) {
+                HttpHandler handler = route(request);
+                if (handler == null) continue;
+                LocalExchange exchange = new LocalExchange("GET", URI.create(request));
+                try {
+                    handler.handle(exchange);
+                    if (exchange.getResponseCode() < 500) ok++;
+                } catch (Exception e) {
+                    // A failing warm-up request must not stop the server from starting
+                }
+            }
+        }
+        return ok;
+    }
+
+    // Same rule as HttpServer: the longest matching context path wins
+    private HttpHandler route(String request) {
+        String match = null;
+        for (String path : routes.keySet()) {
+            if (request.startsWith(path) && (match == null || path.length() > match.length())) {
+                match = path;
+            }
+        }
+        return match == null ? null : routes.get(match);
+    }
+
+    // In-memory exchange: no socket, the response body is discarded
+    private static class LocalExchange extends HttpExchange {
+        private final String method;
+        private final URI uri;
+        private final Headers requestHeaders = new Headers();
+        private final Headers responseHeaders = new Headers();
+        private final Map<String, Object> attributes = new HashMap<>();
+        private InputStream in = new ByteArrayInputStream(new byte[0]);
+        private OutputStream out = new ByteArrayOutputStream();
+        private int responseCode = -1;
+
+        LocalExchange(String method, URI uri) {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        @Override public Headers getRequestHeaders() { return requestHeaders; }
+        @Override public Headers getResponseHeaders() { return responseHeaders; }
+        @Override public URI getRequestURI() { return uri; }
+        @Override public String getRequestMethod() { return method; }
+        @Override public HttpContext getHttpContext() { return null; }
+        @Override public void close() { }
+        @Override public InputStream getRequestBody() { return in; }
+        @Override public OutputStream getResponseBody() { return out; }
+        @Override public void sendResponseHeaders(int rCode, long responseLength) { responseCode = rCode; }
+        @Override public InetSocketAddress getRemoteAddress() { return new InetSocketAddress("127.0.0.1", 0); }
+        @Override public int getResponseCode() { return responseCode; }
+        @Override public InetSocketAddress getLocalAddress() { return new InetSocketAddress("127.0.0.1", 0); }
+        @Override public String getProtocol() { return "HTTP/1.1"; }
+        @Override public Object getAttribute(String name) { return attributes.get(name); }
+        @Override public void setAttribute(String name, Object value) { attributes.put(name, value); }
+        @Override public void setStreams(InputStream i, OutputStream o) { if (i != null) in = i; if (o != null) out = o; }
+        @Override public HttpPrincipal getPrincipal() { return null; }
+    }
+}